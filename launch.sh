@@ -0,0 +1,35 @@
+#!/bin/sh
+# Runs net.minecraft.launchwrapper.Launch with an AppCDS archive of the classes
+# it loads itself (launchwrapper, jopt-simple, ASM, log4j).
+#
+# Usage: LAUNCH_CLASSPATH=<jars> ./launch.sh [--train] <Launch arguments...>
+#
+# The first run, or any run with --train, is a training run: the JVM records every
+# class loaded from the classpath and writes a dynamic archive to $CDS_ARCHIVE on exit.
+# Later runs map that archive instead of loading and verifying those classes again.
+# Dynamic archives need Java 13+. Older JVMs ignore the CDS flags and run normally.
+# CDS only accepts jars on the classpath. A non-empty directory entry disables sharing,
+# and so does a classpath that differs from the one used for training.
+
+JAVA=${JAVA:-java}
+CDS_ARCHIVE=${CDS_ARCHIVE:-build/launchwrapper.jsa}
+
+if [ -z "$LAUNCH_CLASSPATH" ]; then
+    echo "LAUNCH_CLASSPATH must be set" >&2
+    exit 1
+fi
+
+if [ "$1" = "--train" ]; then
+    shift
+    rm -f "$CDS_ARCHIVE"
+fi
+
+if [ -f "$CDS_ARCHIVE" ]; then
+    CDS_OPTS="-XX:SharedArchiveFile=$CDS_ARCHIVE -Xshare:auto"
+else
+    mkdir -p "$(dirname "$CDS_ARCHIVE")"
+    CDS_OPTS="-XX:ArchiveClassesAtExit=$CDS_ARCHIVE"
+fi
+
+# shellcheck disable=SC2086
+exec "$JAVA" -XX:+IgnoreUnrecognizedVMOptions $CDS_OPTS $JAVA_OPTS -cp "$LAUNCH_CLASSPATH" net.minecraft.launchwrapper.Launch "$@"
@@ -0,0 +1,80 @@
+package net.minecraft.launchwrapper.bench;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import net.minecraft.launchwrapper.Launch;
+
+/**
+ * Child process entry point. Runs {@link Launch} and writes its own resource usage to the
+ * file named by the first argument when the JVM exits, including through {@code System.exit}.
+ */
+public class BenchRunner {
+
+    public static void main(String[] args) throws IOException {
+        final Path metrics = Paths.get(args[0]);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> writeMetrics(metrics), "Bench metrics"));
+        Launch.main(Arrays.copyOfRange(args, 1, args.length));
+    }
+
+    private static void writeMetrics(final Path path) {
+        long cpuTime = -1L;
+        final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            cpuTime = ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        long gcTime = 0L;
+        long gcCount = 0L;
+        for (final GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcTime += Math.max(0L, gc.getCollectionTime());
+            gcCount += Math.max(0L, gc.getCollectionCount());
+        }
+        long peakHeap = 0L;
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+        final long classesDefined = Launch.classLoader == null ? 0L : Launch.classLoader.getStats().getClassesDefined();
+        final String json = "{\"cpuTimeNanos\":" + cpuTime
+                + ",\"gcTimeMillis\":" + gcTime
+                + ",\"gcCount\":" + gcCount
+                + ",\"peakHeapBytes\":" + peakHeap
+                + ",\"peakRssBytes\":" + peakRss()
+                + ",\"classesDefined\":" + classesDefined
+                + "}";
+        try {
+            Files.write(path, json.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    private static long peakRss() {
+        final Path status = Paths.get("/proc/self/status");
+        if (!Files.isReadable(status)) {
+            return -1L;
+        }
+        try {
+            final List<String> lines = Files.readAllLines(status, StandardCharsets.UTF_8);
+            for (final String line : lines) {
+                if (line.startsWith("VmHWM:")) {
+                    final String value = line.substring(6).trim();
+                    return Long.parseLong(value.substring(0, value.indexOf(' '))) * 1024L;
+                }
+            }
+        } catch (IOException | RuntimeException ignored) {
+        }
+        return -1L;
+    }
+}
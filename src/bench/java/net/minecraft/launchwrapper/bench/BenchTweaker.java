@@ -0,0 +1,31 @@
+package net.minecraft.launchwrapper.bench;
+
+import java.io.File;
+import java.util.List;
+
+import net.minecraft.launchwrapper.ITweaker;
+import net.minecraft.launchwrapper.LaunchClassLoader;
+
+/**
+ * No-op tweaker so a benchmark run measures the launcher itself.
+ */
+public class BenchTweaker implements ITweaker {
+
+    @Override
+    public void acceptOptions(List<String> args, File gameDir, File assetsDir, String profile) {
+    }
+
+    @Override
+    public void injectIntoClassLoader(LaunchClassLoader classLoader) {
+    }
+
+    @Override
+    public String getLaunchTarget() {
+        return null;
+    }
+
+    @Override
+    public String[] getLaunchArguments() {
+        return new String[0];
+    }
+}
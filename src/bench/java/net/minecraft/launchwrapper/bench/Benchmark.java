@@ -0,0 +1,279 @@
+package net.minecraft.launchwrapper.bench;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+import joptsimple.OptionSpec;
+
+/**
+ * End-to-end macrobenchmark: generates a synthetic corpus, runs {@code Launch} against it
+ * in a fresh JVM per run and writes wall time, CPU time, memory, GC and output size as JSON.
+ */
+public class Benchmark {
+
+    public static void main(String[] args) throws Exception {
+        final OptionParser parser = new OptionParser();
+        final OptionSpec<File> workDirOption = parser.accepts("workDir", "Where the corpus and run outputs go").withRequiredArg().ofType(File.class).defaultsTo(new File("bench"));
+        final OptionSpec<File> resultOption = parser.accepts("result", "JSON result file").withRequiredArg().ofType(File.class).defaultsTo(new File("bench-result.json"));
+        final OptionSpec<Integer> runsOption = parser.accepts("runs", "Measured runs").withRequiredArg().ofType(Integer.class).defaultsTo(3);
+        final OptionSpec<Long> seedOption = parser.accepts("seed", "Corpus seed").withRequiredArg().ofType(Long.class).defaultsTo(42L);
+        final OptionSpec<Integer> gameClassesOption = parser.accepts("gameClasses", "Classes in the game jar").withRequiredArg().ofType(Integer.class).defaultsTo(2000);
+        final OptionSpec<Integer> librariesOption = parser.accepts("libraries", "Number of library jars").withRequiredArg().ofType(Integer.class).defaultsTo(10);
+        final OptionSpec<Integer> libraryClassesOption = parser.accepts("libraryClasses", "Classes per library jar").withRequiredArg().ofType(Integer.class).defaultsTo(500);
+        final OptionSpec<Integer> methodsOption = parser.accepts("methods", "Methods per class").withRequiredArg().ofType(Integer.class).defaultsTo(8);
+        final OptionSpec<Integer> fieldsOption = parser.accepts("fields", "Fields per class").withRequiredArg().ofType(Integer.class).defaultsTo(4);
+        final OptionSpec<Integer> resourcesOption = parser.accepts("resources", "Resources per jar").withRequiredArg().ofType(Integer.class).defaultsTo(50);
+        final OptionSpec<Integer> resourceSizeOption = parser.accepts("resourceSize", "Bytes per resource").withRequiredArg().ofType(Integer.class).defaultsTo(4096);
+        final OptionSpec<Integer> atRulesOption = parser.accepts("atRules", "AccessTransformer rules").withRequiredArg().ofType(Integer.class).defaultsTo(200);
+        final OptionSpec<String> jvmArgsOption = parser.accepts("jvmArgs", "Extra JVM arguments for the measured process").withRequiredArg().defaultsTo("");
+        final OptionSpec<String> launchArgsOption = parser.accepts("launchArgs", "Extra Launch arguments, e.g. --outputMode directory").withRequiredArg().defaultsTo("");
+        final OptionSet options = parser.parse(args);
+
+        final File workDir = options.valueOf(workDirOption).getAbsoluteFile();
+        final File corpusDir = new File(workDir, "corpus");
+        delete(workDir.toPath());
+        Files.createDirectories(corpusDir.toPath());
+
+        final Map<String, Object> config = new LinkedHashMap<>();
+        for (final OptionSpec<?> spec : Arrays.asList(seedOption, gameClassesOption, librariesOption, libraryClassesOption, methodsOption,
+                fieldsOption, resourcesOption, resourceSizeOption, atRulesOption, jvmArgsOption, launchArgsOption)) {
+            config.put(spec.options().iterator().next(), options.valueOf(spec));
+        }
+
+        System.out.println("Generating corpus in " + corpusDir);
+        final CorpusGenerator generator = new CorpusGenerator(options.valueOf(seedOption), options.valueOf(methodsOption),
+                options.valueOf(fieldsOption), options.valueOf(resourcesOption), options.valueOf(resourceSizeOption));
+        final File gameJar = new File(corpusDir, "game.jar");
+        final List<String> gameClasses = generator.writeJar(gameJar, "bench/game", options.valueOf(gameClassesOption));
+        final List<File> classpath = new ArrayList<>();
+        classpath.add(packLauncher(new File(corpusDir, "launcher.jar")));
+        for (int i = 0; i < options.valueOf(librariesOption); i++) {
+            final File library = new File(corpusDir, "library-" + i + ".jar");
+            generator.writeJar(library, "bench/lib" + i, options.valueOf(libraryClassesOption));
+            classpath.add(library);
+        }
+        final File atJar = new File(corpusDir, "at.jar");
+        generator.writeAccessTransformerJar(atJar, gameClasses, options.valueOf(atRulesOption));
+        classpath.add(atJar);
+        final long corpusSize = size(corpusDir.toPath()) - new File(corpusDir, "launcher.jar").length();
+
+        final List<Map<String, Object>> runs = new ArrayList<>();
+        for (int i = 0; i < options.valueOf(runsOption); i++) {
+            final Map<String, Object> run = run(new File(workDir, "run-" + i), classpath, gameJar,
+                    split(options.valueOf(jvmArgsOption)), split(options.valueOf(launchArgsOption)));
+            System.out.println("Run " + i + ": " + run);
+            runs.add(run);
+        }
+
+        final Map<String, Object> result = new LinkedHashMap<>();
+        result.put("java", System.getProperty("java.version"));
+        result.put("config", config);
+        result.put("corpusBytes", corpusSize);
+        result.put("medianWallNanos", median(runs, "wallNanos"));
+        result.put("medianCpuTimeNanos", median(runs, "cpuTimeNanos"));
+        result.put("runs", runs);
+        final File resultFile = options.valueOf(resultOption);
+        Files.write(resultFile.toPath(), toJson(result).getBytes(StandardCharsets.UTF_8));
+        System.out.println("Wrote " + resultFile.getAbsolutePath());
+    }
+
+    private static Map<String, Object> run(File runDir, List<File> classpath, File gameJar, List<String> jvmArgs, List<String> launchArgs) throws IOException, InterruptedException {
+        final File outputDir = new File(runDir, "output");
+        Files.createDirectories(outputDir.toPath());
+        final File metricsFile = new File(runDir, "metrics.json");
+        final List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin" + File.separator + "java").getPath());
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(classpath.stream().map(File::getPath).collect(Collectors.joining(File.pathSeparator)));
+        command.add(BenchRunner.class.getName());
+        command.add(metricsFile.getPath());
+        command.add("--inputJar");
+        command.add(gameJar.getPath());
+        command.add("--tweakClass");
+        command.add(BenchTweaker.class.getName());
+        command.add("--outputDir");
+        command.add(outputDir.getPath());
+        command.addAll(launchArgs);
+
+        final ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(runDir)
+                .redirectErrorStream(true)
+                .redirectOutput(new File(runDir, "launch.log"));
+        final long start = System.nanoTime();
+        final int exitCode = builder.start().waitFor();
+        final long wall = System.nanoTime() - start;
+
+        final Map<String, Object> run = new LinkedHashMap<>();
+        run.put("exitCode", exitCode);
+        run.put("wallNanos", wall);
+        if (metricsFile.isFile()) {
+            // The child writes a flat JSON object of numbers
+            final String metrics = new String(Files.readAllBytes(metricsFile.toPath()), StandardCharsets.UTF_8).trim();
+            for (final String pair : metrics.substring(1, metrics.length() - 1).split(",")) {
+                final int colon = pair.indexOf(':');
+                run.put(pair.substring(1, colon - 1), Long.parseLong(pair.substring(colon + 1)));
+            }
+        }
+        run.put("outputBytes", size(outputDir.toPath()));
+        return run;
+    }
+
+    /**
+     * Merges the benchmark's own classpath into one jar. Launch skips its own code source,
+     * so this keeps the launcher and its libraries out of the measured output.
+     */
+    private static File packLauncher(File target) throws IOException {
+        final Set<String> written = new HashSet<>();
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(target))) {
+            for (final String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+                final File file = new File(entry);
+                if (file.isDirectory()) {
+                    final Path root = file.toPath();
+                    final List<Path> files;
+                    try (Stream<Path> stream = Files.walk(root)) {
+                        files = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+                    }
+                    for (final Path path : files) {
+                        final String name = root.relativize(path).toString().replace(File.separatorChar, '/');
+                        try (InputStream in = new FileInputStream(path.toFile())) {
+                            copy(out, written, name, in);
+                        }
+                    }
+                } else if (file.isFile()) {
+                    try (JarFile jar = new JarFile(file)) {
+                        final Enumeration<JarEntry> entries = jar.entries();
+                        while (entries.hasMoreElements()) {
+                            final JarEntry jarEntry = entries.nextElement();
+                            if (!jarEntry.isDirectory()) {
+                                try (InputStream in = jar.getInputStream(jarEntry)) {
+                                    copy(out, written, jarEntry.getName(), in);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return target;
+    }
+
+    private static void copy(JarOutputStream out, Set<String> written, String name, InputStream in) throws IOException {
+        final String upper = name.toUpperCase(Locale.ENGLISH);
+        if (upper.equals("META-INF/MANIFEST.MF") || upper.startsWith("META-INF/") && (upper.endsWith(".SF") || upper.endsWith(".RSA") || upper.endsWith(".DSA"))) {
+            return;
+        }
+        if (!written.add(name)) {
+            return;
+        }
+        out.putNextEntry(new JarEntry(name));
+        final byte[] buffer = new byte[8192];
+        int r;
+        while ((r = in.read(buffer)) != -1) {
+            out.write(buffer, 0, r);
+        }
+        out.closeEntry();
+    }
+
+    private static long median(List<Map<String, Object>> runs, String key) {
+        final long[] values = runs.stream().map(run -> run.get(key)).filter(Objects::nonNull).mapToLong(value -> (Long) value).sorted().toArray();
+        return values.length == 0 ? -1L : values[values.length / 2];
+    }
+
+    private static List<String> split(String args) {
+        final String trimmed = args.trim();
+        return trimmed.isEmpty() ? Collections.emptyList() : Arrays.asList(trimmed.split("\\s+"));
+    }
+
+    private static long size(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return 0L;
+        }
+        try (Stream<Path> stream = Files.walk(root)) {
+            return stream.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+        }
+    }
+
+    private static void delete(Path root) throws IOException {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> stream = Files.walk(root)) {
+            for (final Path path : stream.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static String toJson(Object value) {
+        final StringBuilder builder = new StringBuilder();
+        appendJson(builder, value, 0);
+        return builder.append('\n').toString();
+    }
+
+    private static void appendJson(StringBuilder builder, Object value, int indent) {
+        if (value instanceof Map) {
+            builder.append("{\n");
+            final Iterator<? extends Map.Entry<?, ?>> it = ((Map<?, ?>) value).entrySet().iterator();
+            while (it.hasNext()) {
+                final Map.Entry<?, ?> entry = it.next();
+                indent(builder, indent + 1);
+                appendString(builder, entry.getKey().toString());
+                builder.append(": ");
+                appendJson(builder, entry.getValue(), indent + 1);
+                builder.append(it.hasNext() ? ",\n" : "\n");
+            }
+            indent(builder, indent);
+            builder.append('}');
+        } else if (value instanceof List) {
+            builder.append("[\n");
+            final Iterator<?> it = ((List<?>) value).iterator();
+            while (it.hasNext()) {
+                indent(builder, indent + 1);
+                appendJson(builder, it.next(), indent + 1);
+                builder.append(it.hasNext() ? ",\n" : "\n");
+            }
+            indent(builder, indent);
+            builder.append(']');
+        } else if (value instanceof Number || value instanceof Boolean) {
+            builder.append(value);
+        } else {
+            appendString(builder, String.valueOf(value));
+        }
+    }
+
+    private static void appendString(StringBuilder builder, String value) {
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        builder.append('"');
+    }
+
+    private static void indent(StringBuilder builder, int indent) {
+        for (int i = 0; i < indent; i++) {
+            builder.append("  ");
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package net.minecraft.launchwrapper.bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Writes a deterministic synthetic corpus: a game jar, library jars and an AccessTransformer jar.
+ * The same settings and seed always produce byte-identical jars.
+ */
+final class CorpusGenerator {
+    static final String AT_FILE = "bench_at.cfg";
+    private static final int CLASSES_PER_PACKAGE = 64;
+    // Fixed entry time, the default is the current time and would make every corpus differ
+    private static final long ENTRY_TIME = 1262304000000L;
+    private static final String TEXT = "The quick brown fox jumps over the lazy dog. ";
+
+    private final Random random;
+    private final int methods;
+    private final int fields;
+    private final int resources;
+    private final int resourceSize;
+
+    CorpusGenerator(long seed, int methods, int fields, int resources, int resourceSize) {
+        this.random = new Random(seed);
+        this.methods = methods;
+        this.fields = fields;
+        this.resources = resources;
+        this.resourceSize = resourceSize;
+    }
+
+    /**
+     * @return internal names of the generated classes
+     */
+    List<String> writeJar(File file, String rootPackage, int classes) throws IOException {
+        final List<String> names = new ArrayList<>(classes);
+        for (int i = 0; i < classes; i++) {
+            names.add(rootPackage + "/p" + (i / CLASSES_PER_PACKAGE) + "/C" + i);
+        }
+        try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(file))) {
+            writeManifest(jar, null);
+            for (int i = 0; i < classes; i++) {
+                final String name = names.get(i);
+                // Chain runs of four classes to their successor. Entries are visited in order, so loading
+                // the first one of a run defines the rest of it through nested loads
+                final int next = i + 1;
+                final String superName = next % 4 == 0 || next % CLASSES_PER_PACKAGE == 0 || next == classes ? "java/lang/Object" : names.get(next);
+                jar.putNextEntry(entry(name + ".class"));
+                jar.write(generateClass(name, superName));
+                jar.closeEntry();
+            }
+            for (int i = 0; i < resources; i++) {
+                jar.putNextEntry(entry(rootPackage + "/res/r" + i + (i % 2 == 0 ? ".txt" : ".bin")));
+                jar.write(generateResource(i % 2 == 0));
+                jar.closeEntry();
+            }
+        }
+        return names;
+    }
+
+    void writeAccessTransformerJar(File file, List<String> targets, int rules) throws IOException {
+        final StringBuilder builder = new StringBuilder(rules * 48);
+        for (int i = 0; i < rules; i++) {
+            final String target = targets.get(random.nextInt(targets.size())).replace('/', '.');
+            switch (i % 3) {
+                case 0:
+                    builder.append("public ").append(target).append('\n');
+                    break;
+                case 1:
+                    builder.append("public-f ").append(target).append(" f").append(random.nextInt(Math.max(1, fields))).append('\n');
+                    break;
+                default:
+                    builder.append("public ").append(target).append(" m").append(random.nextInt(Math.max(1, methods))).append("()V # method\n");
+                    break;
+            }
+        }
+        try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(file))) {
+            writeManifest(jar, AT_FILE);
+            jar.putNextEntry(entry("META-INF/" + AT_FILE));
+            jar.write(builder.toString().getBytes(StandardCharsets.UTF_8));
+            jar.closeEntry();
+        }
+    }
+
+    private static JarEntry entry(String name) {
+        final JarEntry entry = new JarEntry(name);
+        entry.setTime(ENTRY_TIME);
+        return entry;
+    }
+
+    private static void writeManifest(JarOutputStream jar, String fmlat) throws IOException {
+        final Manifest manifest = new Manifest();
+        final Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        if (fmlat != null) {
+            attributes.putValue("FMLAT", fmlat);
+        }
+        jar.putNextEntry(entry(JarFile.MANIFEST_NAME));
+        manifest.write(jar);
+        jar.closeEntry();
+    }
+
+    private byte[] generateClass(String name, String superName) {
+        final ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(V1_8, ACC_PUBLIC | ACC_SUPER, name, null, superName, null);
+        for (int i = 0; i < fields; i++) {
+            final FieldVisitor fv = writer.visitField(ACC_PRIVATE | (i % 2 == 0 ? ACC_FINAL : 0), "f" + i, "I", null, i % 2 == 0 ? i : null);
+            fv.visitEnd();
+        }
+
+        MethodVisitor mv = writer.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, superName, "<init>", "()V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        for (int i = 0; i < methods; i++) {
+            mv = writer.visitMethod(ACC_PRIVATE, "m" + i, "()V", null, null);
+            mv.visitCode();
+            // A unique constant per method gives the constant pool a realistic size
+            mv.visitLdcInsn(name + '#' + i + '#' + Long.toHexString(random.nextLong()));
+            mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/String", "length", "()I", false);
+            mv.visitInsn(POP);
+            if (i > 0) {
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitMethodInsn(INVOKESPECIAL, name, "m" + (i - 1), "()V", false);
+            }
+            mv.visitInsn(RETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private byte[] generateResource(boolean text) {
+        final byte[] bytes = new byte[resourceSize];
+        if (text) {
+            final byte[] source = TEXT.getBytes(StandardCharsets.US_ASCII);
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = source[i % source.length];
+            }
+        } else {
+            random.nextBytes(bytes);
+        }
+        return bytes;
+    }
+}
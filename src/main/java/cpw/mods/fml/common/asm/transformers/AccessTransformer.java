@@ -1,23 +1,24 @@
 package cpw.mods.fml.common.asm.transformers;
 
-import net.minecraft.launchwrapper.IClassTransformer;
+import net.minecraft.launchwrapper.ITargetedClassTransformer;
 import net.minecraft.launchwrapper.LogWrapper;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.tree.*;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
 
 import static org.objectweb.asm.Opcodes.*;
 
-public final class AccessTransformer implements IClassTransformer {
+public final class AccessTransformer implements ITargetedClassTransformer {
 
     private static class Modifier {
         String name = "";
@@ -44,16 +45,29 @@ public final class AccessTransformer implements IClassTransformer {
         }
     }
 
+    // Bump whenever the binary rule layout below changes
+    private static final int CACHE_VERSION = 1;
+
     private final Map<String, List<Modifier>> modifiers = new HashMap<>();
+    private final File cacheDirectory;
 
     public AccessTransformer(JarFile jar, String atList) throws IOException {
+        this(jar, atList, null);
+    }
+
+    /**
+     * @param cacheDirectory where parsed rule files are cached, keyed by the SHA-1 of their text; {@code null} disables the cache
+     */
+    public AccessTransformer(JarFile jar, String atList, File cacheDirectory) throws IOException {
+        this.cacheDirectory = cacheDirectory;
         for (String at : atList.split(" ")) {
             ZipEntry jarEntry = jar.getEntry("META-INF/" + at);
             if (jarEntry != null) {
-                try (InputStream in = jar.getInputStream(jarEntry);
-                     BufferedReader br = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
-                    processATFile(br);
+                final byte[] bytes;
+                try (InputStream in = jar.getInputStream(jarEntry)) {
+                    bytes = readFully(in);
                 }
+                processATFile(bytes);
             } else {
                 LogWrapper.warning("Unknown entry file: %s", at);
             }
@@ -62,35 +76,153 @@ public final class AccessTransformer implements IClassTransformer {
     }
 
     public AccessTransformer(String... lines) {
+        cacheDirectory = null;
         for (String line : lines) {
-            processLine(line);
+            processLine(modifiers, line);
         }
         LogWrapper.info("Loaded %d rules from AccessTransformer lines", modifiers.size());
     }
 
-    private void processATFile(BufferedReader reader) throws IOException {
-        while (reader.ready()) {
-            processLine(reader.readLine());
+    private void processATFile(byte[] bytes) throws IOException {
+        final File cacheDir = cacheDirectory;
+        if (cacheDir == null) {
+            merge(parseATFile(bytes));
+            return;
         }
+        final File cacheFile = new File(cacheDir, sha1(bytes) + ".bin");
+        if (cacheFile.isFile()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+                final Map<String, List<Modifier>> cached = readRules(in);
+                if (cached != null) {
+                    merge(cached);
+                    return;
+                }
+            } catch (IOException ex) {
+                LogWrapper.warning("Ignoring broken AccessTransformer cache file %s: %s", cacheFile, ex);
+            }
+        }
+        final Map<String, List<Modifier>> parsed = parseATFile(bytes);
+        writeRules(cacheDir, cacheFile, parsed);
+        merge(parsed);
     }
 
-    private void processLine(String input) {
-        Iterator<String> spl = Arrays.asList(input.split("#")).iterator();
-        String line = spl.hasNext() ? spl.next().trim() : "";
+    private void merge(Map<String, List<Modifier>> rules) {
+        for (Map.Entry<String, List<Modifier>> entry : rules.entrySet()) {
+            modifiers.computeIfAbsent(entry.getKey(), k -> new ArrayList<>(4)).addAll(entry.getValue());
+        }
+    }
+
+    private static Map<String, List<Modifier>> parseATFile(byte[] bytes) throws IOException {
+        final Map<String, List<Modifier>> rules = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                processLine(rules, line);
+            }
+        }
+        return rules;
+    }
+
+    private static Map<String, List<Modifier>> readRules(DataInputStream in) throws IOException {
+        if (in.readInt() != CACHE_VERSION) {
+            return null;
+        }
+        final int classes = in.readInt();
+        final Map<String, List<Modifier>> rules = new HashMap<>(classes);
+        for (int i = 0; i < classes; i++) {
+            final String className = in.readUTF();
+            final int count = in.readInt();
+            final List<Modifier> list = new ArrayList<>(count);
+            for (int j = 0; j < count; j++) {
+                final Modifier m = new Modifier();
+                m.name = in.readUTF();
+                m.desc = in.readUTF();
+                m.targetAccess = in.readInt();
+                final int flags = in.readUnsignedByte();
+                m.changeFinal = (flags & 1) != 0;
+                m.markFinal = (flags & 2) != 0;
+                m.modifyClassVisibility = (flags & 4) != 0;
+                list.add(m);
+            }
+            rules.put(className, list);
+        }
+        return rules;
+    }
+
+    private static void writeRules(File cacheDir, File cacheFile, Map<String, List<Modifier>> rules) {
+        try {
+            Files.createDirectories(cacheDir.toPath());
+            // Write aside and move, several jars may share a rule file and be loaded in parallel
+            final File temp = File.createTempFile(cacheFile.getName(), ".tmp", cacheDir);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(CACHE_VERSION);
+                out.writeInt(rules.size());
+                for (Map.Entry<String, List<Modifier>> entry : rules.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(entry.getValue().size());
+                    for (Modifier m : entry.getValue()) {
+                        out.writeUTF(m.name);
+                        out.writeUTF(m.desc);
+                        out.writeInt(m.targetAccess);
+                        out.writeByte((m.changeFinal ? 1 : 0) | (m.markFinal ? 2 : 0) | (m.modifyClassVisibility ? 4 : 0));
+                    }
+                }
+            }
+            Files.move(temp.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            LogWrapper.warning("Unable to write AccessTransformer cache file %s: %s", cacheFile, ex);
+        }
+    }
+
+    private static String sha1(byte[] bytes) {
+        final byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1").digest(bytes);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+        final char[] hex = new char[digest.length << 1];
+        for (int i = 0; i < digest.length; i++) {
+            hex[i << 1] = Character.forDigit((digest[i] >> 4) & 0xF, 16);
+            hex[(i << 1) + 1] = Character.forDigit(digest[i] & 0xF, 16);
+        }
+        return new String(hex);
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        final byte[] buffer = new byte[4096];
+        int r;
+        while ((r = in.read(buffer)) != -1) {
+            out.write(buffer, 0, r);
+        }
+        return out.toByteArray();
+    }
+
+    private static void processLine(Map<String, List<Modifier>> rules, String input) {
+        final int comment = input.indexOf('#');
+        final String line = (comment == -1 ? input : input.substring(0, comment)).trim();
         if (line.isEmpty()) {
             return;
         }
-        List<String> parts = Arrays.asList(line.split(" "));
-        if (parts.size() > 3) {
+        final int first = line.indexOf(' ');
+        if (first == -1) {
+            throw new RuntimeException("Invalid config file line " + input);
+        }
+        final int second = line.indexOf(' ', first + 1);
+        if (second != -1 && line.indexOf(' ', second + 1) != -1) {
             throw new RuntimeException("Invalid config file line " + input);
         }
         Modifier m = new Modifier();
-        m.setTargetAccess(parts.get(0));
+        m.setTargetAccess(line.substring(0, first));
 
-        if (parts.size() == 2) {
+        final String className;
+        if (second == -1) {
             m.modifyClassVisibility = true;
+            className = line.substring(first + 1);
         } else {
-            String nameReference = parts.get(2);
+            className = line.substring(first + 1, second);
+            String nameReference = line.substring(second + 1);
             int parenIdx = nameReference.indexOf('(');
             if (parenIdx > 0) {
                 m.desc = nameReference.substring(parenIdx);
@@ -99,8 +231,17 @@ public final class AccessTransformer implements IClassTransformer {
                 m.name = nameReference;
             }
         }
-        String className = parts.get(1).replace('/', '.');
-        modifiers.computeIfAbsent(className, k -> new ArrayList<>(4)).add(m);
+        rules.computeIfAbsent(className.replace('/', '.'), k -> new ArrayList<>(4)).add(m);
+    }
+
+    @Override
+    public Collection<String> getTargetClasses() {
+        return modifiers.keySet();
+    }
+
+    @Override
+    public Collection<String> getTargetPackages() {
+        return Collections.emptyList();
     }
 
     @Override
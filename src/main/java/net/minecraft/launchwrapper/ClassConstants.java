@@ -0,0 +1,192 @@
+package net.minecraft.launchwrapper;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A cheap view of a class file's constant pool, for transformers that want to know whether a class
+ * mentions something before paying for {@code ClassReader.accept}. Only the constant pool is scanned,
+ * nothing past it is touched. Obtain one through {@link LaunchClassLoader#getClassConstants(byte[])},
+ * which shares a single scan between all transformers that look at the same bytes.
+ * <p>
+ * The view reads the array it was built from and is matched to it by identity. A transformer that
+ * edits its input in place and returns the same array leaves a stale view for the next transformer,
+ * so transformers that use this view must return a new array whenever they change the class.
+ */
+public final class ClassConstants {
+    private static final int CLASS = 7;
+    private static final int FIELD = 9;
+    private static final int METHOD = 10;
+    private static final int INTERFACE_METHOD = 11;
+    private static final int STRING = 8;
+    private static final int NAME_AND_TYPE = 12;
+
+    private final byte[] bytes;
+    private final int[] offsets;
+    private final String[] utf8;
+    private Set<String> classes;
+    private Set<String> members;
+    private Set<String> strings;
+    private Set<String> utf8Values;
+
+    ClassConstants(final byte[] bytes) {
+        this.bytes = bytes;
+        final int count = readUnsignedShort(8);
+        offsets = new int[count];
+        utf8 = new String[count];
+        int index = 10;
+        for (int i = 1; i < count; i++) {
+            offsets[i] = index + 1;
+            final int size;
+            switch (bytes[index]) {
+                case 1: // Utf8
+                    size = 3 + readUnsignedShort(index + 1);
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case FIELD:
+                case METHOD:
+                case INTERFACE_METHOD:
+                case NAME_AND_TYPE:
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    size = 5;
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    size = 9;
+                    i++;
+                    break;
+                case 15: // MethodHandle
+                    size = 4;
+                    break;
+                case CLASS:
+                case STRING:
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    size = 3;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown constant pool tag " + bytes[index] + " at " + index);
+            }
+            index += size;
+        }
+    }
+
+    /**
+     * @param internalName e.g. {@code net/minecraft/client/Minecraft}
+     * @return whether a class constant names it, i.e. the class is referenced, extended or instantiated
+     */
+    public boolean referencesClass(final String internalName) {
+        if (classes == null) {
+            scan();
+        }
+        return classes.contains(internalName);
+    }
+
+    /**
+     * @param owner internal name of the declaring class
+     * @param name  field or method name
+     * @param desc  descriptor, or {@code null} to match any
+     * @return whether a field or method reference to the member exists
+     */
+    public boolean referencesMember(final String owner, final String name, final String desc) {
+        if (members == null) {
+            scan();
+        }
+        return members.contains(desc == null ? owner + '.' + name : owner + '.' + name + desc);
+    }
+
+    /**
+     * @return whether the class loads {@code value} as a string constant
+     */
+    public boolean containsString(final String value) {
+        if (strings == null) {
+            scan();
+        }
+        return strings.contains(value);
+    }
+
+    /**
+     * @return whether any Utf8 constant equals {@code value}, covering names, descriptors and signatures
+     */
+    public boolean containsUtf8(final String value) {
+        if (utf8Values == null) {
+            final Set<String> values = new HashSet<String>(offsets.length);
+            for (int i = 1; i < offsets.length; i++) {
+                if (offsets[i] != 0 && bytes[offsets[i] - 1] == 1) {
+                    values.add(utf8(i));
+                }
+            }
+            utf8Values = values;
+        }
+        return utf8Values.contains(value);
+    }
+
+    private void scan() {
+        final Set<String> classes = new HashSet<String>();
+        final Set<String> members = new HashSet<String>();
+        final Set<String> strings = new HashSet<String>();
+        for (int i = 1; i < offsets.length; i++) {
+            final int offset = offsets[i];
+            if (offset == 0) {
+                continue;
+            }
+            switch (bytes[offset - 1]) {
+                case CLASS:
+                    classes.add(utf8(readUnsignedShort(offset)));
+                    break;
+                case STRING:
+                    strings.add(utf8(readUnsignedShort(offset)));
+                    break;
+                case FIELD:
+                case METHOD:
+                case INTERFACE_METHOD:
+                    final String owner = utf8(readUnsignedShort(offsets[readUnsignedShort(offset)]));
+                    final int nameAndType = offsets[readUnsignedShort(offset + 2)];
+                    final String name = owner + '.' + utf8(readUnsignedShort(nameAndType));
+                    members.add(name);
+                    members.add(name + utf8(readUnsignedShort(nameAndType + 2)));
+                    break;
+            }
+        }
+        this.classes = classes;
+        this.members = members;
+        this.strings = strings;
+    }
+
+    private String utf8(final int index) {
+        String value = utf8[index];
+        if (value == null) {
+            value = utf8[index] = decode(offsets[index] + 2, readUnsignedShort(offsets[index]));
+        }
+        return value;
+    }
+
+    // Modified UTF-8, as in DataInput.readUTF
+    private String decode(int index, final int length) {
+        final int end = index + length;
+        final char[] chars = new char[length];
+        int count = 0;
+        while (index < end) {
+            final int c = bytes[index++] & 0xFF;
+            if (c < 0x80) {
+                chars[count++] = (char) c;
+            } else if (c < 0xE0) {
+                chars[count++] = (char) (((c & 0x1F) << 6) | (bytes[index++] & 0x3F));
+            } else {
+                chars[count++] = (char) (((c & 0x0F) << 12) | ((bytes[index++] & 0x3F) << 6) | (bytes[index++] & 0x3F));
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    boolean isFor(final byte[] bytes) {
+        return this.bytes == bytes;
+    }
+
+    private int readUnsignedShort(final int index) {
+        return ((bytes[index] & 0xFF) << 8) | (bytes[index + 1] & 0xFF);
+    }
+}
@@ -4,5 +4,5 @@ import java.io.IOException;
 
 @FunctionalInterface
 public interface ClassDump {
-    void dumpClass(String originalName, String finalName, byte[] bytes, Class<?> result) throws IOException;
+    void dumpClass(String originalName, String finalName, byte[] originalBytes, byte[] bytes, Class<?> result) throws IOException;
 }
@@ -0,0 +1,175 @@
+package net.minecraft.launchwrapper;
+
+import java.io.PrintWriter;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records which {@link LaunchClassLoader#findClass(String)} call caused which nested loads,
+ * with the time spent in each, so the most expensive load chains and transformers can be reported.
+ */
+public final class ClassLoadTrace {
+    private final ThreadLocal<Node> current = new ThreadLocal<Node>();
+    private final List<Node> roots = Collections.synchronizedList(new ArrayList<Node>());
+    private final Map<String, long[]> transformers = new HashMap<String, long[]>();
+
+    Node enter(final String name) {
+        final Node node = new Node(name, current.get());
+        current.set(node);
+        node.start = System.nanoTime();
+        return node;
+    }
+
+    /**
+     * Closes {@code node}. A load that failed is dropped from the tree, the nested loads it
+     * completed are kept under its parent and its own time counts as the parent's.
+     */
+    void exit(final Node node, final boolean loaded) {
+        node.inclusive = System.nanoTime() - node.start;
+        current.set(node.parent);
+        if (loaded) {
+            attach(node);
+            if (node.parent != null) {
+                node.parent.childTime += node.inclusive;
+            }
+        } else {
+            for (final Node child : node.children) {
+                child.parent = node.parent;
+                attach(child);
+            }
+            if (node.parent != null) {
+                node.parent.childTime += node.childTime;
+            }
+        }
+    }
+
+    private void attach(final Node node) {
+        if (node.parent == null) {
+            roots.add(node);
+        } else {
+            node.parent.children.add(node);
+        }
+    }
+
+    /**
+     * @return the time spent in nested loads of the class currently being loaded on this thread
+     */
+    long nestedTime() {
+        final Node node = current.get();
+        return node == null ? 0L : node.childTime;
+    }
+
+    /**
+     * Records a transformer call of {@code nanos}, excluding the nested loads that completed since
+     * {@link #nestedTime()} returned {@code nestedBefore}; those are already counted in their own nodes.
+     */
+    void transformed(final String transformer, long nanos, final long nestedBefore) {
+        final Node node = current.get();
+        if (node != null) {
+            nanos -= node.childTime - nestedBefore;
+            node.transformTime += nanos;
+        }
+        synchronized (transformers) {
+            final long[] total = transformers.computeIfAbsent(transformer, k -> new long[2]);
+            total[0]++;
+            total[1] += nanos;
+        }
+    }
+
+    /**
+     * Writes the report: the {@code limit} most expensive root loads with their critical path,
+     * the classes with the highest exclusive time, and per-transformer totals.
+     */
+    public void writeReport(final PrintWriter out, final int limit) {
+        final List<Node> roots;
+        synchronized (this.roots) {
+            roots = new ArrayList<Node>(this.roots);
+        }
+        final List<Node> all = new ArrayList<Node>();
+        for (final Node root : roots) {
+            collect(root, all);
+        }
+        long total = 0L;
+        for (final Node root : roots) {
+            total += root.inclusive;
+        }
+        out.printf("Class load trace: %d classes, %d top-level loads, %s total%n%n", all.size(), roots.size(), millis(total));
+
+        roots.sort(Comparator.comparingLong((Node node) -> node.inclusive).reversed());
+        out.printf("Most expensive load chains (critical path through the slowest nested load):%n");
+        for (final Node root : roots.subList(0, Math.min(limit, roots.size()))) {
+            out.printf("%s inclusive, %d classes: %s%n", millis(root.inclusive), root.size(), root.name);
+            int depth = 1;
+            for (Node node = root.slowestChild(); node != null; node = node.slowestChild(), depth++) {
+                out.printf("%" + (depth * 2) + "s-> %s (%s inclusive, %s exclusive)%n", "", node.name, millis(node.inclusive), millis(node.exclusive()));
+            }
+        }
+
+        all.sort(Comparator.comparingLong(Node::exclusive).reversed());
+        out.printf("%nSlowest classes by exclusive time:%n");
+        for (final Node node : all.subList(0, Math.min(limit, all.size()))) {
+            out.printf("%10s exclusive %10s in transformers  %s%n", millis(node.exclusive()), millis(node.transformTime), node.name);
+        }
+
+        final List<Map.Entry<String, long[]>> hotSpots;
+        synchronized (transformers) {
+            hotSpots = new ArrayList<Map.Entry<String, long[]>>(transformers.entrySet());
+        }
+        hotSpots.sort(Comparator.comparingLong((Map.Entry<String, long[]> entry) -> entry.getValue()[1]).reversed());
+        out.printf("%nTransformer hot spots:%n");
+        for (final Map.Entry<String, long[]> entry : hotSpots) {
+            final long[] value = entry.getValue();
+            out.printf("%10s total %8d calls %10s avg  %s%n", millis(value[1]), value[0], millis(value[1] / Math.max(1L, value[0])), entry.getKey());
+        }
+        out.flush();
+    }
+
+    private static void collect(final Node node, final List<Node> into) {
+        into.add(node);
+        for (final Node child : node.children) {
+            collect(child, into);
+        }
+    }
+
+    private static String millis(final long nanos) {
+        return String.format(Locale.ENGLISH, "%.3fms", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1L));
+    }
+
+    static final class Node {
+        final String name;
+        // Moves up when a failed load hands its children to its own parent
+        Node parent;
+        final List<Node> children = new ArrayList<Node>(0);
+        long start;
+        long inclusive;
+        long childTime;
+        long transformTime;
+
+        Node(final String name, final Node parent) {
+            this.name = name;
+            this.parent = parent;
+        }
+
+        long exclusive() {
+            return inclusive - childTime;
+        }
+
+        int size() {
+            int size = 1;
+            for (final Node child : children) {
+                size += child.size();
+            }
+            return size;
+        }
+
+        Node slowestChild() {
+            Node slowest = null;
+            for (final Node child : children) {
+                if (slowest == null || child.inclusive > slowest.inclusive) {
+                    slowest = child;
+                }
+            }
+            return slowest;
+        }
+    }
+}
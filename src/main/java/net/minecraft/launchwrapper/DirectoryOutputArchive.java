@@ -0,0 +1,83 @@
+package net.minecraft.launchwrapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes an exploded tree instead of a jar, so nothing is compressed only to be unpacked again.
+ */
+final class DirectoryOutputArchive extends OutputArchive {
+    private final Path root;
+
+    DirectoryOutputArchive(final File file) throws IOException {
+        super(file);
+        root = Files.createDirectories(file.toPath()).toAbsolutePath().normalize();
+    }
+
+    private Path resolve(final String name) throws IOException {
+        final Path path = checked(name);
+        final Path parent = path.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        return path;
+    }
+
+    // Entry names come from arbitrary jars, never let them escape the output tree
+    private Path checked(final String name) throws IOException {
+        if (name.startsWith("/") || name.startsWith("\\")) {
+            throw new IOException("Refusing absolute entry name: " + name);
+        }
+        final Path entry = root.getFileSystem().getPath(name);
+        if (entry.isAbsolute()) {
+            throw new IOException("Refusing absolute entry name: " + name);
+        }
+        final Path path = root.resolve(entry).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new IOException("Refusing entry outside of " + root + ": " + name);
+        }
+        return path;
+    }
+
+    @Override
+    void write(final String name, final byte[] bytes) throws IOException {
+        Files.write(resolve(name), bytes);
+    }
+
+    @Override
+    long copy(final String name, final InputStream in, final byte[] buffer) throws IOException {
+        if (name.endsWith("/")) {
+            Files.createDirectories(checked(name));
+            return 0L;
+        }
+        return Files.copy(in, resolve(name), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    long copy(final String name, final Path source, final byte[] buffer) throws IOException {
+        try (final FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             final FileChannel out = FileChannel.open(resolve(name), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final long size = in.size();
+            long position = 0L;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+            return size;
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+}
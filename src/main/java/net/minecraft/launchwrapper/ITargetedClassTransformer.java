@@ -0,0 +1,22 @@
+package net.minecraft.launchwrapper;
+
+import java.util.Collection;
+
+/**
+ * A transformer that only cares about a known set of classes.
+ * {@link LaunchClassLoader} indexes these declarations once at registration
+ * and only calls {@link #transform(String, String, byte[])} for matching classes.
+ */
+public interface ITargetedClassTransformer extends IClassTransformer {
+
+    /**
+     * @return transformed (dotted) names of the classes this transformer targets
+     */
+    Collection<String> getTargetClasses();
+
+    /**
+     * @return dotted package names this transformer targets, sub-packages included
+     */
+    Collection<String> getTargetPackages();
+
+}
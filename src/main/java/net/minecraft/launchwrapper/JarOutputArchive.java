@@ -0,0 +1,73 @@
+package net.minecraft.launchwrapper;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+class JarOutputArchive extends OutputArchive {
+    private final JarOutputStream jar;
+
+    JarOutputArchive(final File file) throws IOException {
+        super(file);
+        jar = new JarOutputStream(new FileOutputStream(file));
+    }
+
+    @Override
+    void write(final String name, final byte[] bytes) throws IOException {
+        jar.putNextEntry(new JarEntry(name));
+        jar.write(bytes);
+        jar.closeEntry();
+    }
+
+    @Override
+    long copy(final String name, final InputStream in, final byte[] buffer) throws IOException {
+        jar.putNextEntry(new JarEntry(name));
+        long total = 0L;
+        int r;
+        while ((r = in.read(buffer)) != -1) {
+            jar.write(buffer, 0, r);
+            total += r;
+        }
+        jar.closeEntry();
+        return total;
+    }
+
+    @Override
+    long copy(final String name, final Path source, final byte[] buffer) throws IOException {
+        jar.putNextEntry(new JarEntry(name));
+        try (final FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            final ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+            long total = 0L;
+            int r;
+            while ((r = channel.read(wrapped)) != -1) {
+                if (!wrapped.hasRemaining()) {
+                    jar.write(buffer, 0, wrapped.position());
+                    wrapped.clear();
+                }
+                total += r;
+            }
+            jar.write(buffer, 0, wrapped.position());
+            return total;
+        } finally {
+            jar.closeEntry();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        jar.flush();
+        jar.close();
+    }
+
+    @Override
+    public String toString() {
+        return file + " ; " + jar.hashCode();
+    }
+}
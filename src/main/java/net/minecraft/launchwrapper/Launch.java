@@ -4,13 +4,21 @@ import cpw.mods.fml.common.asm.transformers.AccessTransformer;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
 import joptsimple.OptionSpec;
+import net.minecraft.launchwrapper.jfr.ClassDumpEvent;
+import net.minecraft.launchwrapper.jfr.FlightRecorder;
 
 import java.io.*;
+import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.jar.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.ZipException;
 
 import org.apache.logging.log4j.Level;
@@ -37,12 +45,16 @@ public class Launch {
         final OptionSpec<File> inputOption = parser.accepts("inputJar", "Input game jar").withRequiredArg().ofType(File.class).required();
         final OptionSpec<Boolean> fmlOption = parser.accepts("fml").withRequiredArg().ofType(Boolean.TYPE).defaultsTo(Boolean.FALSE);
         final OptionSpec<File> outputOption = parser.accepts("outputDir", "Output directory").withRequiredArg().ofType(File.class).defaultsTo(new File("output"));
+        final OptionSpec<File> atCacheOption = parser.accepts("atCacheDir", "AccessTransformer rule cache directory").withRequiredArg().ofType(File.class).defaultsTo(new File("atcache"));
+        final OptionSpec<Integer> resourceCacheOption = parser.accepts("resourceCache", "Resource cache size in MiB, 0 disables it").withRequiredArg().ofType(Integer.class).defaultsTo(0);
+        final OptionSpec<File> loadTraceOption = parser.accepts("loadTrace", "Write a class load dependency report to this file").withRequiredArg().ofType(File.class);
+        final OptionSpec<String> outputModeOption = parser.accepts("outputMode", "Output layout: jar, directory or patch").withRequiredArg().defaultsTo("jar");
 
         final OptionSpec<String> nonOption = parser.nonOptions();
 
         final OptionSet options = parser.parse(args);
         final File inputFile = options.valueOf(inputOption);
-        if (!inputFile.isFile()) {
+        if (!inputFile.exists()) {
             LogWrapper.log(Level.ERROR, "Input file does not exist!");
             System.exit(1);
         }
@@ -51,19 +63,35 @@ public class Launch {
             LogWrapper.warning("Error cleaning temp directory");
         }
         final File outputDir = options.valueOf(outputOption);
+        final OutputMode outputMode;
+        try {
+            outputMode = OutputMode.valueOf(options.valueOf(outputModeOption).toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException ex) {
+            LogWrapper.log(Level.ERROR, "Unknown output mode: %s", options.valueOf(outputModeOption));
+            System.exit(1);
+            return;
+        }
         if (!clean(outputDir) && !outputDir.mkdirs()) {
             LogWrapper.log(Level.FATAL, "Error cleaning output directory");
             System.exit(1);
         }
 
-        final LaunchClassLoader classLoader = Launch.classLoader = new LaunchClassLoader(((URLClassLoader) Launch.class.getClassLoader()).getURLs());
+        final LaunchClassLoader classLoader = Launch.classLoader = new LaunchClassLoader(getClassPath());
         blackboard = new HashMap<String, Object>();
         Thread.currentThread().setContextClassLoader(classLoader);
         classLoader.addClassLoaderExclusion("jdk.");
+        classLoader.getStats().register();
+        classLoader.setResourceCacheSize(options.valueOf(resourceCacheOption) * 1024L * 1024L);
+        // The patch mode diffs against the original bytes, so they must survive in-place edits
+        classLoader.setSnapshotOriginalBytes(!outputMode.writesUnchanged());
+        final File loadTraceFile = options.valueOf(loadTraceOption);
+        if (loadTraceFile != null) {
+            classLoader.setLoadTrace(new ClassLoadTrace());
+        }
 
         final URL inputURL = inputFile.toURI().toURL();
         classLoader.addURL(inputURL);
-        final Map<String, JarOutputStream> outputs = new HashMap<>();
+        final Map<String, OutputArchive> outputs = new HashMap<>();
         try {
             final boolean fml = options.valueOf(fmlOption);
             minecraftHome = options.valueOf(gameDirOption);
@@ -83,39 +111,24 @@ public class Launch {
             blackboard.put("ArgumentList", argumentList);
 
             if (!fml) {
-                for (final URL url : classLoader.getURLs()) {
-                    final String protocol = url.getProtocol();
-                    if ("file".equals(protocol)) {
-                        final File file;
-                        try {
-                            file = new File(url.toURI());
-                        } catch (URISyntaxException ex) {
-                            LogWrapper.log(Level.WARN, ex, "Broken URL: %s", url);
-                            continue;
-                        }
-                        if (!file.isFile()) {
-                            continue;
-                        }
-
-                        try (final JarFile jarFile = new JarFile(file)) {
-                            final Manifest manifest = jarFile.getManifest();
-                            if (manifest == null) {
-                                continue;
-                            }
-                            final Attributes attributes = manifest.getMainAttributes();
-                            if (attributes == null) {
-                                continue;
-                            }
-                            final String fmlat = attributes.getValue("FMLAT");
-                            if (fmlat == null) {
-                                continue;
-                            }
-                            LogWrapper.info("Found FMLAT: %s", fmlat);
-                            classLoader.registerTransformer(new AccessTransformer(jarFile, fmlat));
-                        } catch (ZipException ex) {
-                            LogWrapper.log(Level.FATAL, ex, "Unable to open jar: %s", file);
-                            System.exit(1);
-                        }
+                final File atCacheDir = options.valueOf(atCacheOption);
+                // Manifests are read in parallel, registration keeps the classpath order
+                final List<AccessTransformer> accessTransformers;
+                try {
+                    accessTransformers = Arrays.stream(classLoader.getURLs())
+                            .parallel()
+                            .map(url -> loadAccessTransformer(url, atCacheDir))
+                            .collect(Collectors.toList());
+                } catch (UncheckedIOException ex) {
+                    if (ex.getCause() instanceof ZipException) {
+                        LogWrapper.log(Level.FATAL, ex.getCause(), "%s", ex.getMessage());
+                        System.exit(1);
+                    }
+                    throw ex.getCause();
+                }
+                for (final AccessTransformer accessTransformer : accessTransformers) {
+                    if (accessTransformer != null) {
+                        classLoader.registerTransformer(accessTransformer);
                     }
                 }
             }
@@ -185,26 +198,27 @@ public class Launch {
                 // Finally we turn to the primary tweaker, and let it tell us where to go to launch
                 final String launchTarget = primaryTweaker.getLaunchTarget();
 
-                final Map<JarOutputStream, Set<String>> entriesMap = new HashMap<>();
                 final byte[] buffer = new byte[16384];
-                final ByteArrayOutputStream baos = new ByteArrayOutputStream(16384);
-                classLoader.classDump = (originalName, finalName, bytes, clazz) -> {
-                    final URL location = clazz.getProtectionDomain().getCodeSource().getLocation();
-                    final JarOutputStream outputJar;
-                    try {
-                        outputJar = getJar(outputDir, outputs, location);
-                    } catch (URISyntaxException e) {
-                        e.printStackTrace();
-                        LogWrapper.log(Level.FATAL, e, null);
-                        System.exit(1);
+                classLoader.classDump = (originalName, finalName, originalBytes, bytes, clazz) -> {
+                    if (!outputMode.writesUnchanged() && Arrays.equals(originalBytes, bytes)) {
                         return;
                     }
+                    final URL location = clazz.getProtectionDomain().getCodeSource().getLocation();
+                    final OutputArchive outputJar = getJar(outputDir, outputMode, outputs, location);
                     final String entryName = finalName.replace('.', '/') + ".class";
-                    if (entriesMap.computeIfAbsent(outputJar, __ -> new HashSet<>(512)).add(entryName)) {
-                        LogWrapper.info("Dumping class: %s/%d", finalName, outputJar.hashCode());
-                        outputJar.putNextEntry(new JarEntry(entryName));
-                        outputJar.write(bytes);
-                        outputJar.closeEntry();
+                    if (outputJar.claim(entryName)) {
+                        LogWrapper.info("Dumping class: %s/%s", finalName, outputJar);
+                        ClassDumpEvent dumpEvent = null;
+                        if (FlightRecorder.ENABLED) {
+                            dumpEvent = new ClassDumpEvent();
+                            dumpEvent.begin();
+                        }
+                        outputJar.write(entryName, bytes);
+                        final String output = toAbsolutePath(location);
+                        classLoader.getStats().entryWritten(output, bytes.length);
+                        if (dumpEvent != null) {
+                            dumpEvent.finish(finalName, output, bytes.length);
+                        }
                     }
                 };
                 // Let's rock!
@@ -217,16 +231,26 @@ public class Launch {
                 final URL[] classpath = classLoader.getURLs();
                 final Set<URL> visited = new HashSet<>(classpath.length, 1F);
                 // First visit minecraft.jar
-                visitJar(entriesMap, inputURL, baos, buffer, outputDir, outputs);
+                visitJar(inputURL, buffer, outputDir, outputMode, outputs);
                 visited.add(inputURL);
                 visited.add(new File(Launch.class.getProtectionDomain().getCodeSource().getLocation().toURI().getPath()).toURI().toURL());
 
                 for (final URL url : classLoader.getURLs()) {
                     if (visited.add(url)) {
-                        visitJar(entriesMap, url, baos, buffer, outputDir, outputs);
+                        visitJar(url, buffer, outputDir, outputMode, outputs);
                     }
                 }
 
+                classLoader.getStats().setCurrentJar(null);
+                if (classLoader.getResourceCache() != null) {
+                    LogWrapper.info("Resource cache: %s", classLoader.getResourceCache());
+                }
+                if (loadTraceFile != null) {
+                    try (final PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(loadTraceFile), StandardCharsets.UTF_8))) {
+                        classLoader.getLoadTrace().writeReport(out, 25);
+                    }
+                    LogWrapper.info("Wrote class load trace to %s", loadTraceFile);
+                }
                 LogWrapper.info("Done transforming jar files");
             } catch (Exception e) {
                 LogWrapper.log(Level.ERROR, e, "Unable to launch");
@@ -234,34 +258,93 @@ public class Launch {
             }
         } finally {
             // Must close
-            for (final JarOutputStream jar : outputs.values()) {
-                jar.flush();
-                jar.close();
+            for (final OutputArchive output : outputs.values()) {
+                output.close();
+            }
+        }
+    }
+
+    private static URL[] getClassPath() throws MalformedURLException {
+        final ClassLoader loader = Launch.class.getClassLoader();
+        if (loader instanceof URLClassLoader) {
+            return ((URLClassLoader) loader).getURLs();
+        }
+        // Java 9+ application class loader, needed to run with CDS archives
+        final String[] entries = System.getProperty("java.class.path").split(File.pathSeparator);
+        final List<URL> urls = new ArrayList<URL>(entries.length);
+        for (final String entry : entries) {
+            if (!entry.isEmpty()) {
+                urls.add(new File(entry).getAbsoluteFile().toURI().toURL());
+            }
+        }
+        return urls.toArray(new URL[0]);
+    }
+
+    private static AccessTransformer loadAccessTransformer(final URL url, final File atCacheDir) {
+        if (!"file".equals(url.getProtocol())) {
+            return null;
+        }
+        final File file;
+        try {
+            file = new File(url.toURI());
+        } catch (URISyntaxException ex) {
+            LogWrapper.log(Level.WARN, ex, "Broken URL: %s", url);
+            return null;
+        }
+        if (!file.isFile()) {
+            return null;
+        }
+
+        // Only the manifest is needed here, so skip signature verification
+        try (final JarFile jarFile = new JarFile(file, false)) {
+            final Manifest manifest = jarFile.getManifest();
+            if (manifest == null) {
+                return null;
             }
+            final Attributes attributes = manifest.getMainAttributes();
+            if (attributes == null) {
+                return null;
+            }
+            final String fmlat = attributes.getValue("FMLAT");
+            if (fmlat == null) {
+                return null;
+            }
+            LogWrapper.info("Found FMLAT: %s", fmlat);
+            return new AccessTransformer(jarFile, fmlat, atCacheDir);
+        } catch (ZipException ex) {
+            // Reported on the launching thread, this runs on a pool worker
+            throw new UncheckedIOException("Unable to open jar: " + file, ex);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
         }
     }
 
-    private static void visitJar(final Map<JarOutputStream, Set<String>> entries, final URL url, final ByteArrayOutputStream baos, final byte[] buffer, final File outputDir, final Map<String, JarOutputStream> outputs) throws URISyntaxException, IOException, ClassNotFoundException {
-        try (final JarFile inputJar = new JarFile(new File(url.toURI()))) {
+    private static void visitJar(final URL url, final byte[] buffer, final File outputDir, final OutputMode outputMode, final Map<String, OutputArchive> outputs) throws URISyntaxException, IOException, ClassNotFoundException {
+        final File file = new File(url.toURI());
+        if (file.isDirectory()) {
+            visitDirectory(url, file.toPath(), buffer, outputDir, outputMode, outputs);
+            return;
+        }
+        try (final JarFile inputJar = new JarFile(file)) {
             LogWrapper.info("Visiting: %s", url);
+            final LaunchStats stats = classLoader.getStats();
+            stats.setCurrentJar(url.toString());
             final Enumeration<JarEntry> enumeration = inputJar.entries();
             while (enumeration.hasMoreElements()) {
                 final JarEntry entry = enumeration.nextElement();
                 final String name = entry.getName();
                 if (!name.endsWith(".class")) {
-                    final JarOutputStream outputJar = getJar(outputDir, outputs, url);
-                    if (entries.computeIfAbsent(outputJar, __ -> new HashSet<>(512)).add(name)) {
-                        baos.reset();
+                    if (!outputMode.writesUnchanged()) {
+                        continue;
+                    }
+                    final OutputArchive outputJar = getJar(outputDir, outputMode, outputs, url);
+                    if (outputJar.claim(name)) {
+                        final long size;
                         try (final InputStream in = inputJar.getInputStream(entry)) {
-                            int r;
-                            while ((r = in.read(buffer)) != -1) {
-                                baos.write(buffer, 0, r);
-                            }
+                            size = outputJar.copy(name, in, buffer);
                         }
-                        final byte[] bytes = baos.toByteArray();
-                        outputJar.putNextEntry(new JarEntry(name));
-                        outputJar.write(bytes);
-                        outputJar.closeEntry();
+                        stats.bytesRead((int) size);
+                        stats.entryWritten(toAbsolutePath(url), (int) size);
                     }
                 } else {
                     classLoader.loadClass(name.substring(0, name.length() - 6).replace('/', '.'), true);
@@ -270,18 +353,41 @@ public class Launch {
         }
     }
 
-    private static JarOutputStream getJar(final File outputDir, final Map<String, JarOutputStream> cache, final URL file) throws URISyntaxException {
+    private static void visitDirectory(final URL url, final Path root, final byte[] buffer, final File outputDir, final OutputMode outputMode, final Map<String, OutputArchive> outputs) throws IOException, ClassNotFoundException {
+        LogWrapper.info("Visiting directory: %s", url);
+        final LaunchStats stats = classLoader.getStats();
+        stats.setCurrentJar(url.toString());
+        final List<Path> files;
+        try (final Stream<Path> stream = Files.walk(root)) {
+            // Sorted so the output is the same regardless of filesystem iteration order
+            files = stream.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for (final Path path : files) {
+            final String name = root.relativize(path).toString().replace(File.separatorChar, '/');
+            if (!name.endsWith(".class")) {
+                if (!outputMode.writesUnchanged()) {
+                    continue;
+                }
+                final OutputArchive outputJar = getJar(outputDir, outputMode, outputs, url);
+                if (outputJar.claim(name)) {
+                    final long size = outputJar.copy(name, path, buffer);
+                    stats.bytesRead((int) size);
+                    stats.entryWritten(toAbsolutePath(url), (int) size);
+                }
+            } else {
+                classLoader.loadClass(name.substring(0, name.length() - 6).replace('/', '.'), true);
+            }
+        }
+    }
+
+    private static OutputArchive getJar(final File outputDir, final OutputMode outputMode, final Map<String, OutputArchive> cache, final URL file) {
         return cache.computeIfAbsent(toAbsolutePath(file), url -> {
             try {
-                final File ref = new File(outputDir, new File(url).getName());
-                if (ref.delete()) {
-                    ref.createNewFile();
-                }
-                final JarOutputStream jar = new JarOutputStream(new FileOutputStream(ref));
-                LogWrapper.info("Stored new jar: %s ; %s ; %s", url, ref, jar.hashCode());
-                return jar;
+                final OutputArchive output = outputMode.open(outputDir, new File(url));
+                LogWrapper.info("Stored new output: %s ; %s", url, output);
+                return output;
             } catch (IOException ex) {
-                throw new RuntimeException(ex);
+                throw new UncheckedIOException(ex);
             }
         });
     }
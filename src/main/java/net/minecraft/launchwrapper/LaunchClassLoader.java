@@ -15,6 +15,11 @@ import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 
+import net.minecraft.launchwrapper.jfr.ClassDefineEvent;
+import net.minecraft.launchwrapper.jfr.ClassReadEvent;
+import net.minecraft.launchwrapper.jfr.ClassTransformEvent;
+import net.minecraft.launchwrapper.jfr.FlightRecorder;
+
 import org.apache.logging.log4j.Level;
 
 public class LaunchClassLoader extends URLClassLoader {
@@ -23,14 +28,22 @@ public class LaunchClassLoader extends URLClassLoader {
     private final ClassLoader parent = getClass().getClassLoader();
 
     private final List<IClassTransformer> transformers = new ArrayList<IClassTransformer>(2);
+    // Dispatch index: bit i set means transformers.get(i) must see the class
+    private final BitSet untargetedTransformers = new BitSet();
+    private final Map<String, BitSet> classTargets = new HashMap<String, BitSet>();
+    private final Map<String, BitSet> packageTargets = new HashMap<String, BitSet>();
     private final Map<String, Class<?>> cachedClasses = new ConcurrentHashMap<String, Class<?>>(1024);
 
     private final Set<String> classLoaderExceptions = new HashSet<String>();
     private final Set<String> transformerExceptions = new HashSet<String>();
     private IClassNameTransformer renameTransformer;
-    private final ThreadLocal<byte[]> loadBuffer = new ThreadLocal<byte[]>();
+    private final ThreadLocal<ConstantsSlot> classConstants = new ThreadLocal<ConstantsSlot>();
     private static final String[] RESERVED_NAMES = {"CON", "PRN", "AUX", "NUL", "COM1", "COM2", "COM3", "COM4", "COM5", "COM6", "COM7", "COM8", "COM9", "LPT1", "LPT2", "LPT3", "LPT4", "LPT5", "LPT6", "LPT7", "LPT8", "LPT9"};
     ClassDump classDump;
+    private boolean snapshotOriginalBytes;
+    private final LaunchStats stats = new LaunchStats(this);
+    private volatile ResourceCache resourceCache;
+    private volatile ClassLoadTrace loadTrace;
 
     public LaunchClassLoader(URL[] sources) {
         super(sources, null);
@@ -53,7 +66,19 @@ public class LaunchClassLoader extends URLClassLoader {
     }
 
     public void registerTransformer(IClassTransformer transformer) {
+        final int index = transformers.size();
         transformers.add(transformer);
+        if (transformer instanceof ITargetedClassTransformer) {
+            final ITargetedClassTransformer targeted = (ITargetedClassTransformer) transformer;
+            for (final String target : targeted.getTargetClasses()) {
+                classTargets.computeIfAbsent(target, k -> new BitSet()).set(index);
+            }
+            for (final String target : targeted.getTargetPackages()) {
+                packageTargets.computeIfAbsent(target, k -> new BitSet()).set(index);
+            }
+        } else {
+            untargetedTransformers.set(index);
+        }
         if (transformer instanceof IClassNameTransformer && renameTransformer == null) {
             renameTransformer = (IClassNameTransformer) transformer;
         }
@@ -85,11 +110,17 @@ public class LaunchClassLoader extends URLClassLoader {
             return cachedClasses.get(name);
         }
 
+        final ClassLoadTrace trace = loadTrace;
+        ClassLoadTrace.Node traceNode = null;
+        boolean loaded = false;
         try {
             final String transformedName = transformName(name);
             if (cachedClasses.containsKey(transformedName)) {
                 return cachedClasses.get(transformedName);
             }
+            if (trace != null) {
+                traceNode = trace.enter(name);
+            }
 
             final String untransformedName = untransformName(name);
 
@@ -98,7 +129,9 @@ public class LaunchClassLoader extends URLClassLoader {
             final String fileName = untransformedName.replace('.', '/').concat(".class");
             URLConnection urlConnection = findCodeSourceConnectionFor(fileName);
 
+            final String source = FlightRecorder.ENABLED && urlConnection != null ? urlConnection.getURL().toString() : null;
             CodeSigner[] signers = null;
+            byte[] classBytes = null;
 
             if (lastDot > -1 && !untransformedName.startsWith("net.minecraft.")) {
                 if (urlConnection instanceof JarURLConnection) {
@@ -110,7 +143,8 @@ public class LaunchClassLoader extends URLClassLoader {
                         final JarEntry entry = jarFile.getJarEntry(fileName);
 
                         Package pkg = getPackage(packageName);
-                        getClassBytes(untransformedName);
+                        // Signers are only known once the entry has been read, keep the bytes for below
+                        classBytes = readClassBytes(untransformedName, source);
                         signers = entry.getCodeSigners();
                         if (pkg == null) {
                             pkg = definePackage(packageName, manifest, jarURLConnection.getJarFileURL());
@@ -140,19 +174,55 @@ public class LaunchClassLoader extends URLClassLoader {
                 }
             }
 
-            byte[] transformedClass = getClassBytes(untransformedName);
+            byte[] transformedClass = classBytes != null ? classBytes : readClassBytes(untransformedName, source);
+            // Transformers may edit their input in place, copy it when the dump compares against it
+            final byte[] basicClass = transform && snapshotOriginalBytes && transformedClass != null ? transformedClass.clone() : transformedClass;
             if (transform) {
+                final byte[] input = transformedClass;
                 transformedClass = runTransformers(untransformedName, transformedName, transformedClass);
+                if (transformedClass != input && transformedClass != null) {
+                    stats.bytesTransformed(transformedClass.length);
+                }
             }
 
-            final CodeSource codeSource = urlConnection == null ? null : new CodeSource(urlConnection.getURL(), signers);
+            final CodeSource codeSource = urlConnection == null ? null : new CodeSource(getCodeSourceURL(urlConnection), signers);
+            ClassDefineEvent defineEvent = null;
+            if (FlightRecorder.ENABLED) {
+                defineEvent = new ClassDefineEvent();
+                defineEvent.begin();
+            }
             final Class<?> clazz = defineClass(transformedName, transformedClass, 0, transformedClass.length, codeSource);
+            if (defineEvent != null) {
+                defineEvent.finish(transformedName, source, transformedClass.length);
+            }
             cachedClasses.put(transformedName, clazz);
-            classDump.dumpClass(name, transformedName, transformedClass, clazz);
+            stats.classDefined();
+            classDump.dumpClass(name, transformedName, basicClass, transformedClass, clazz);
+            loaded = true;
             return clazz;
         } catch (Throwable e) {
             throw new ClassNotFoundException(name, e);
+        } finally {
+            if (traceNode != null) {
+                trace.exit(traceNode, loaded);
+            }
+        }
+    }
+
+    private byte[] readClassBytes(final String untransformedName, final String source) throws IOException {
+        ClassReadEvent readEvent = null;
+        if (FlightRecorder.ENABLED) {
+            readEvent = new ClassReadEvent();
+            readEvent.begin();
+        }
+        final byte[] classBytes = getClassBytes(untransformedName);
+        if (classBytes != null) {
+            stats.bytesRead(classBytes.length);
         }
+        if (readEvent != null) {
+            readEvent.finish(untransformedName, source, classBytes == null ? 0 : classBytes.length);
+        }
+        return classBytes;
     }
 
     private String untransformName(final String name) {
@@ -187,6 +257,26 @@ public class LaunchClassLoader extends URLClassLoader {
         return "true".equalsIgnoreCase(sealed);
     }
 
+    private URL getCodeSourceURL(final URLConnection urlConnection) {
+        final URL url = urlConnection.getURL();
+        if (urlConnection instanceof JarURLConnection) {
+            return url;
+        }
+        // Classes from a directory entry belong to the directory, not to their own file.
+        // The resource path is percent-encoded, so take the classpath entry it was resolved against
+        final String location = url.toString();
+        URL base = null;
+        int baseLength = 0;
+        for (final URL candidate : getURLs()) {
+            final String prefix = candidate.toString();
+            if (prefix.length() > baseLength && location.startsWith(prefix)) {
+                base = candidate;
+                baseLength = prefix.length();
+            }
+        }
+        return base == null ? url : base;
+    }
+
     private URLConnection findCodeSourceConnectionFor(final String name) {
         final URL resource = findResource(name);
         if (resource != null) {
@@ -201,56 +291,210 @@ public class LaunchClassLoader extends URLClassLoader {
     }
 
     private byte[] runTransformers(final String name, final String transformedName, byte[] basicClass) {
-        for (int i = 0, j = transformers.size(); i < j; i++) {
-            IClassTransformer transformer = transformers.get(i);
-            basicClass = transformer.transform(name, transformedName, basicClass);
+        // A transformer may load another class, which gets its own slot until it is done
+        final ConstantsSlot previous = classConstants.get();
+        classConstants.set(new ConstantsSlot());
+        try {
+            return runSelectedTransformers(name, transformedName, basicClass);
+        } finally {
+            // Don't keep the last class alive once its transformers are done
+            if (previous == null) {
+                classConstants.remove();
+            } else {
+                classConstants.set(previous);
+            }
+        }
+    }
+
+    private byte[] runSelectedTransformers(final String name, final String transformedName, byte[] basicClass) {
+        // Only when nothing is targeted, a targeted transformer without targets must still see no class
+        if (untargetedTransformers.cardinality() == transformers.size()) {
+            for (int i = 0, j = transformers.size(); i < j; i++) {
+                basicClass = runTransformer(transformers.get(i), name, transformedName, basicClass);
+            }
+            return basicClass;
+        }
+
+        final BitSet selected = (BitSet) untargetedTransformers.clone();
+        BitSet targets = classTargets.get(transformedName);
+        if (targets != null) {
+            selected.or(targets);
+        }
+        if (!packageTargets.isEmpty()) {
+            for (int dot = transformedName.lastIndexOf('.'); dot > 0; dot = transformedName.lastIndexOf('.', dot - 1)) {
+                targets = packageTargets.get(transformedName.substring(0, dot));
+                if (targets != null) {
+                    selected.or(targets);
+                }
+            }
+        }
+        // Walk in registration order so targeted transformers keep their position in the chain
+        for (int i = selected.nextSetBit(0); i >= 0; i = selected.nextSetBit(i + 1)) {
+            basicClass = runTransformer(transformers.get(i), name, transformedName, basicClass);
         }
         return basicClass;
     }
 
+    private byte[] runTransformer(final IClassTransformer transformer, final String name, final String transformedName, final byte[] basicClass) {
+        final ClassLoadTrace trace = loadTrace;
+        if (trace != null) {
+            final long nested = trace.nestedTime();
+            final long start = System.nanoTime();
+            try {
+                return runTransformerEvent(transformer, name, transformedName, basicClass);
+            } finally {
+                trace.transformed(transformer.getClass().getName(), System.nanoTime() - start, nested);
+            }
+        }
+        return runTransformerEvent(transformer, name, transformedName, basicClass);
+    }
+
+    private static byte[] runTransformerEvent(final IClassTransformer transformer, final String name, final String transformedName, final byte[] basicClass) {
+        if (!FlightRecorder.ENABLED) {
+            return transformer.transform(name, transformedName, basicClass);
+        }
+        final ClassTransformEvent event = new ClassTransformEvent();
+        event.begin();
+        final byte[] result = transformer.transform(name, transformedName, basicClass);
+        event.finish(transformedName, transformer.getClass().getName(), basicClass == null ? 0 : basicClass.length, result == null ? 0 : result.length);
+        return result;
+    }
+
+    /**
+     * Returns the constant pool view of {@code basicClass}. While transformers run, the scan is kept
+     * for the current bytes, so every transformer that receives the same array shares it.
+     * Outside of a transformer call a fresh scan is returned and nothing is kept.
+     * <p>
+     * The scan is matched to the array by identity, so a transformer that edits its input in place
+     * and returns the same array invalidates it for every transformer after it. Return a new array
+     * when changing the class, as {@code ClassWriter.toByteArray} does.
+     *
+     * @param basicClass the bytes passed to {@link IClassTransformer#transform(String, String, byte[])}
+     */
+    public ClassConstants getClassConstants(final byte[] basicClass) {
+        final ConstantsSlot slot = classConstants.get();
+        if (slot == null) {
+            return new ClassConstants(basicClass);
+        }
+        if (slot.constants == null || !slot.constants.isFor(basicClass)) {
+            slot.constants = new ClassConstants(basicClass);
+        }
+        return slot.constants;
+    }
+
+    private static final class ConstantsSlot {
+        ClassConstants constants;
+    }
+
     @Override
     public void addURL(final URL url) {
         super.addURL(url);
         sources.add(url);
+        final ResourceCache cache = resourceCache;
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Keeps up to {@code maxBytes} of resource bytes read through {@link #getClassBytes(String)},
+     * {@link #getResourceBytes(String)} and {@link #getResourceAsStream(String)} in memory.
+     * A value of zero or less turns the cache off.
+     */
+    public void setResourceCacheSize(final long maxBytes) {
+        resourceCache = maxBytes > 0L ? new ResourceCache(maxBytes) : null;
+    }
+
+    /**
+     * Starts recording the nested load tree of every class defined from now on. Pass {@code null} to stop.
+     */
+    public void setLoadTrace(final ClassLoadTrace loadTrace) {
+        this.loadTrace = loadTrace;
+    }
+
+    public ClassLoadTrace getLoadTrace() {
+        return loadTrace;
+    }
+
+    /**
+     * @return the resource cache, or {@code null} if it is disabled
+     */
+    public ResourceCache getResourceCache() {
+        return resourceCache;
+    }
+
+    @Override
+    public InputStream getResourceAsStream(final String name) {
+        if (resourceCache == null) {
+            return super.getResourceAsStream(name);
+        }
+        // Same delegation as super, only the read of the resolved URL goes through the cache
+        final URL resource = getResource(name);
+        if (resource == null) {
+            return null;
+        }
+        try {
+            return new ByteArrayInputStream(readResource(name, resource, false));
+        } catch (IOException e) {
+            return null;
+        }
     }
 
     public List<URL> getSources() {
         return sources;
     }
 
-    private byte[] readFully(InputStream stream) {
-        try {
-            byte[] buffer = getOrCreateBuffer();
+    /**
+     * When enabled, the original bytes passed to {@link ClassDump} are a copy taken before any
+     * transformer ran. Otherwise they are the array handed to the transformers, which may have changed it.
+     */
+    public void setSnapshotOriginalBytes(final boolean snapshotOriginalBytes) {
+        this.snapshotOriginalBytes = snapshotOriginalBytes;
+    }
 
-            int read;
+    public LaunchStats getStats() {
+        return stats;
+    }
+
+    int getCachedClassCount() {
+        return cachedClasses.size();
+    }
+
+    private static byte[] readFully(InputStream stream, long expectedLength) throws IOException {
+        if (expectedLength >= 0L && expectedLength < Integer.MAX_VALUE) {
+            // Jar entries and files report their size, read straight into the result
+            final byte[] result = new byte[(int) expectedLength];
             int totalLength = 0;
-            while ((read = stream.read(buffer, totalLength, buffer.length - totalLength)) != -1) {
+            int read;
+            while (totalLength < result.length && (read = stream.read(result, totalLength, result.length - totalLength)) != -1) {
                 totalLength += read;
-
-                // Extend our buffer
-                if (totalLength >= buffer.length - 1) {
-                    byte[] newBuffer = new byte[buffer.length + BUFFER_SIZE];
-                    System.arraycopy(buffer, 0, newBuffer, 0, buffer.length);
-                    buffer = newBuffer;
-                }
             }
-
-            final byte[] result = new byte[totalLength];
-            System.arraycopy(buffer, 0, result, 0, totalLength);
-            return result;
-        } catch (Throwable t) {
-            LogWrapper.log(Level.WARN, t, "Problem loading class");
-            return new byte[0];
+            if (totalLength < result.length) {
+                return Arrays.copyOf(result, totalLength);
+            }
+            final int next = stream.read();
+            if (next == -1) {
+                return result;
+            }
+            // The reported size was wrong, keep reading into a growing buffer
+            final byte[] buffer = Arrays.copyOf(result, totalLength + BUFFER_SIZE);
+            buffer[totalLength++] = (byte) next;
+            return readRemaining(stream, buffer, totalLength);
         }
+        return readRemaining(stream, new byte[BUFFER_SIZE], 0);
     }
 
-    private byte[] getOrCreateBuffer() {
-        byte[] buffer = loadBuffer.get();
-        if (buffer == null) {
-            loadBuffer.set(new byte[BUFFER_SIZE]);
-            buffer = loadBuffer.get();
+    private static byte[] readRemaining(InputStream stream, byte[] buffer, int totalLength) throws IOException {
+        int read;
+        while ((read = stream.read(buffer, totalLength, buffer.length - totalLength)) != -1) {
+            totalLength += read;
+
+            // Extend our buffer
+            if (totalLength == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length << 1);
+            }
         }
-        return buffer;
+        return Arrays.copyOf(buffer, totalLength);
     }
 
     public List<IClassTransformer> getTransformers() {
@@ -277,19 +521,43 @@ public class LaunchClassLoader extends URLClassLoader {
             }
         }
 
-        InputStream classStream = null;
-        try {
-            final String resourcePath = name.replace('.', '/').concat(".class");
-            final URL classResource = findResource(resourcePath);
+        final String resourceName = name.replace('.', '/').concat(".class");
+        final URL resource = findResource(resourceName);
+        return resource == null ? null : readResource(resourceName, resource, true);
+    }
+
+    /**
+     * Reads a resource from this loader's own classpath, going through the resource cache if enabled.
+     *
+     * @return the resource bytes, or {@code null} if it was not found
+     */
+    public byte[] getResourceBytes(final String name) throws IOException {
+        final URL resource = findResource(name);
+        return resource == null ? null : readResource(name, resource, true);
+    }
 
-            if (classResource == null) {
-                return null;
+    private byte[] readResource(final String name, final URL resource, final boolean copy) throws IOException {
+        final ResourceCache cache = resourceCache;
+        if (cache != null) {
+            final byte[] cached = cache.get(name, resource);
+            if (cached != null) {
+                return copy ? cached.clone() : cached;
             }
-            classStream = classResource.openStream();
+        }
 
-            return readFully(classStream);
+        InputStream stream = null;
+        try {
+            final URLConnection connection = resource.openConnection();
+            stream = connection.getInputStream();
+
+            final byte[] bytes = readFully(stream, connection.getContentLengthLong());
+            if (cache != null) {
+                // Callers own the returned array, the cache keeps its own copy
+                cache.put(name, resource, copy ? bytes.clone() : bytes);
+            }
+            return bytes;
         } finally {
-            closeSilently(classStream);
+            closeSilently(stream);
         }
     }
 
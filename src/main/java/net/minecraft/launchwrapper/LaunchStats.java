@@ -0,0 +1,130 @@
+package net.minecraft.launchwrapper;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.logging.log4j.Level;
+
+/**
+ * Live counters for a run, exposed over JMX so progress can be watched with jconsole.
+ */
+public class LaunchStats implements LaunchStatsMXBean {
+    public static final String OBJECT_NAME = "net.minecraft.launchwrapper:type=LaunchStats";
+
+    private final LaunchClassLoader classLoader;
+    private final long startTime = System.nanoTime();
+    private final AtomicLong classesDefined = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong bytesTransformed = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final Map<String, AtomicInteger> outputEntries = new ConcurrentHashMap<String, AtomicInteger>();
+    private volatile String currentJar;
+
+    LaunchStats(final LaunchClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    public void register() {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            LogWrapper.log(Level.WARN, e, "Unable to register %s", OBJECT_NAME);
+        }
+    }
+
+    void classDefined() {
+        classesDefined.incrementAndGet();
+    }
+
+    public void bytesRead(final int count) {
+        bytesRead.addAndGet(count);
+    }
+
+    void bytesTransformed(final int count) {
+        bytesTransformed.addAndGet(count);
+    }
+
+    public void entryWritten(final String output, final int size) {
+        outputEntries.computeIfAbsent(output, k -> new AtomicInteger()).incrementAndGet();
+        bytesWritten.addAndGet(size);
+    }
+
+    public void setCurrentJar(final String currentJar) {
+        this.currentJar = currentJar;
+    }
+
+    @Override
+    public long getClassesDefined() {
+        return classesDefined.get();
+    }
+
+    @Override
+    public int getClassesCached() {
+        return classLoader.getCachedClassCount();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    @Override
+    public long getBytesTransformed() {
+        return bytesTransformed.get();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    @Override
+    public Map<String, Integer> getOutputEntryCounts() {
+        final Map<String, Integer> counts = new HashMap<String, Integer>(outputEntries.size());
+        for (final Map.Entry<String, AtomicInteger> entry : outputEntries.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+        return counts;
+    }
+
+    @Override
+    public String getCurrentJar() {
+        return currentJar;
+    }
+
+    @Override
+    public double getClassesPerSecond() {
+        final long elapsed = System.nanoTime() - startTime;
+        return elapsed <= 0L ? 0D : classesDefined.get() * (double) TimeUnit.SECONDS.toNanos(1L) / elapsed;
+    }
+
+    @Override
+    public long getResourceCacheHits() {
+        final ResourceCache cache = classLoader.getResourceCache();
+        return cache == null ? 0L : cache.getHits();
+    }
+
+    @Override
+    public long getResourceCacheMisses() {
+        final ResourceCache cache = classLoader.getResourceCache();
+        return cache == null ? 0L : cache.getMisses();
+    }
+
+    @Override
+    public long getResourceCacheBytes() {
+        final ResourceCache cache = classLoader.getResourceCache();
+        return cache == null ? 0L : cache.getSize();
+    }
+}
@@ -0,0 +1,29 @@
+package net.minecraft.launchwrapper;
+
+import java.util.Map;
+
+public interface LaunchStatsMXBean {
+
+    long getClassesDefined();
+
+    int getClassesCached();
+
+    long getBytesRead();
+
+    long getBytesTransformed();
+
+    long getBytesWritten();
+
+    Map<String, Integer> getOutputEntryCounts();
+
+    String getCurrentJar();
+
+    double getClassesPerSecond();
+
+    long getResourceCacheHits();
+
+    long getResourceCacheMisses();
+
+    long getResourceCacheBytes();
+
+}
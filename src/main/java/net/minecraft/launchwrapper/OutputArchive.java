@@ -0,0 +1,40 @@
+package net.minecraft.launchwrapper;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * One output per source jar or directory. Keeps track of written entry names so duplicates are skipped.
+ */
+abstract class OutputArchive implements Closeable {
+    final File file;
+    private final Set<String> entries = new HashSet<String>(512);
+
+    OutputArchive(final File file) {
+        this.file = file;
+    }
+
+    /**
+     * @return {@code true} if the entry has not been written yet and the caller should write it
+     */
+    boolean claim(final String name) {
+        return entries.add(name);
+    }
+
+    abstract void write(String name, byte[] bytes) throws IOException;
+
+    /**
+     * @return number of bytes copied
+     */
+    abstract long copy(String name, InputStream in, byte[] buffer) throws IOException;
+
+    /**
+     * @return number of bytes copied
+     */
+    abstract long copy(String name, Path source, byte[] buffer) throws IOException;
+}
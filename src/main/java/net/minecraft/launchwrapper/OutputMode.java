@@ -0,0 +1,61 @@
+package net.minecraft.launchwrapper;
+
+import java.io.File;
+import java.io.IOException;
+
+public enum OutputMode {
+    /**
+     * One jar per source jar or directory, the release layout.
+     */
+    JAR {
+        @Override
+        OutputArchive open(final File outputDir, final File source) throws IOException {
+            final File ref = new File(outputDir, source.isDirectory() ? source.getName() + ".jar" : source.getName());
+            if (ref.delete()) {
+                ref.createNewFile();
+            }
+            return new JarOutputArchive(ref);
+        }
+    },
+    /**
+     * One exploded directory per source jar or directory, with nothing compressed.
+     */
+    DIRECTORY {
+        @Override
+        OutputArchive open(final File outputDir, final File source) throws IOException {
+            String name = source.getName();
+            if (!source.isDirectory() && name.endsWith(".jar")) {
+                name = name.substring(0, name.length() - 4);
+            }
+            return new DirectoryOutputArchive(new File(outputDir, name));
+        }
+    },
+    /**
+     * One jar per source holding only the classes transformers actually changed,
+     * listed in {@value PatchOutputArchive#PATCH_LIST}. Resources are left out.
+     */
+    PATCH {
+        @Override
+        OutputArchive open(final File outputDir, final File source) throws IOException {
+            final File ref = new File(outputDir, source.isDirectory() ? source.getName() + ".jar" : source.getName());
+            if (ref.delete()) {
+                ref.createNewFile();
+            }
+            return new PatchOutputArchive(ref, source);
+        }
+
+        @Override
+        boolean writesUnchanged() {
+            return false;
+        }
+    };
+
+    abstract OutputArchive open(File outputDir, File source) throws IOException;
+
+    /**
+     * @return {@code false} if resources and classes left untouched by the transformers are skipped
+     */
+    boolean writesUnchanged() {
+        return true;
+    }
+}
@@ -0,0 +1,39 @@
+package net.minecraft.launchwrapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A jar of changed classes only, with a plain-text list of those classes so the patch can be applied
+ * over the original jar without diffing it again.
+ */
+final class PatchOutputArchive extends JarOutputArchive {
+    static final String PATCH_LIST = "META-INF/patch.list";
+    private final File source;
+    private final List<String> changed = new ArrayList<String>();
+
+    PatchOutputArchive(final File file, final File source) throws IOException {
+        super(file);
+        this.source = source;
+    }
+
+    @Override
+    void write(final String name, final byte[] bytes) throws IOException {
+        super.write(name, bytes);
+        changed.add(name);
+    }
+
+    @Override
+    public void close() throws IOException {
+        final StringBuilder builder = new StringBuilder(32 + changed.size() * 48);
+        builder.append("# Patch for ").append(source.getName()).append(", ").append(changed.size()).append(" changed classes\n");
+        for (final String name : changed) {
+            builder.append(name).append('\n');
+        }
+        super.write(PATCH_LIST, builder.toString().getBytes(StandardCharsets.UTF_8));
+        super.close();
+    }
+}
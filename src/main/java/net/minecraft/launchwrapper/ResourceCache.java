@@ -0,0 +1,94 @@
+package net.minecraft.launchwrapper;
+
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded LRU cache of resource bytes for {@link LaunchClassLoader}.
+ * Entries are keyed by resource name and only served when the lookup resolved to
+ * the same URL they were read from; the whole cache is dropped whenever the classpath changes.
+ */
+public final class ResourceCache {
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(256, 0.75F, true);
+    private long size;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    ResourceCache(final long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the cached bytes of {@code name}, or {@code null} if they are missing or were read from another URL
+     */
+    synchronized byte[] get(final String name, final URL source) {
+        final Entry entry = entries.get(name);
+        if (entry == null || !entry.source.equals(source.toExternalForm())) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.bytes;
+    }
+
+    synchronized void put(final String name, final URL source, final byte[] bytes) {
+        if (bytes.length > maxBytes) {
+            return;
+        }
+        final Entry previous = entries.put(name, new Entry(source.toExternalForm(), bytes));
+        if (previous != null) {
+            size -= previous.bytes.length;
+        }
+        size += bytes.length;
+        for (final Iterator<Entry> it = entries.values().iterator(); size > maxBytes && it.hasNext(); ) {
+            size -= it.next().bytes.length;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        size = 0L;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d entries, %d/%d bytes, %d hits, %d misses, %d evictions", entries.size(), size, maxBytes, hits, misses, evictions);
+    }
+
+    private static final class Entry {
+        // External form, URL.equals may resolve host names
+        final String source;
+        final byte[] bytes;
+
+        Entry(final String source, final byte[] bytes) {
+            this.source = source;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package net.minecraft.launchwrapper.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("launchwrapper.ClassDefine")
+@Label("Class Define")
+@Category("LaunchWrapper")
+@Description("Time spent in defineClass for transformed class bytes")
+public class ClassDefineEvent extends Event {
+    @Label("Class Name")
+    public String className;
+
+    @Label("Source")
+    public String source;
+
+    @Label("Size")
+    @DataAmount
+    public int size;
+
+    public void finish(final String className, final String source, final int size) {
+        end();
+        if (shouldCommit()) {
+            this.className = className;
+            this.source = source;
+            this.size = size;
+            commit();
+        }
+    }
+}
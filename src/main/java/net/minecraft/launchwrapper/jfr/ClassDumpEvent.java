@@ -0,0 +1,34 @@
+package net.minecraft.launchwrapper.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("launchwrapper.ClassDump")
+@Label("Class Dump")
+@Category("LaunchWrapper")
+@Description("Time spent writing a class to its output jar")
+public class ClassDumpEvent extends Event {
+    @Label("Class Name")
+    public String className;
+
+    @Label("Output")
+    public String output;
+
+    @Label("Size")
+    @DataAmount
+    public int size;
+
+    public void finish(final String className, final String output, final int size) {
+        end();
+        if (shouldCommit()) {
+            this.className = className;
+            this.output = output;
+            this.size = size;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package net.minecraft.launchwrapper.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("launchwrapper.ClassTransform")
+@Label("Class Transform")
+@Category("LaunchWrapper")
+@Description("Time spent in a single transformer for one class")
+public class ClassTransformEvent extends Event {
+    @Label("Class Name")
+    public String className;
+
+    @Label("Transformer")
+    public String transformer;
+
+    @Label("Input Size")
+    @DataAmount
+    public int inputSize;
+
+    @Label("Output Size")
+    @DataAmount
+    public int outputSize;
+
+    public void finish(final String className, final String transformer, final int inputSize, final int outputSize) {
+        end();
+        if (shouldCommit()) {
+            this.className = className;
+            this.transformer = transformer;
+            this.inputSize = inputSize;
+            this.outputSize = outputSize;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package net.minecraft.launchwrapper.jfr;
+
+/**
+ * Guards every use of the event classes in this package, so the launcher
+ * still runs on Java 8 builds that ship without the jdk.jfr API.
+ */
+public final class FlightRecorder {
+    public static final boolean ENABLED = isAvailable();
+
+    private FlightRecorder() {
+    }
+
+    private static boolean isAvailable() {
+        if (Boolean.getBoolean("launchwrapper.jfr.disable")) {
+            return false;
+        }
+        try {
+            Class.forName("jdk.jfr.Event", false, FlightRecorder.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError ignored) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package net.minecraft.launchwrapper;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ClassLoadTraceTest {
+    @Test
+    public void failedLoadHandsChildrenToParent() {
+        final ClassLoadTrace trace = new ClassLoadTrace();
+        final ClassLoadTrace.Node outer = trace.enter("Outer");
+        final ClassLoadTrace.Node failing = trace.enter("Failing");
+        final ClassLoadTrace.Node child = trace.enter("Child");
+        trace.exit(child, true);
+        trace.exit(failing, false);
+        trace.exit(outer, true);
+
+        assertEquals(Collections.singletonList(child), outer.children);
+        assertSame(outer, child.parent);
+        assertEquals(child.inclusive, outer.childTime);
+
+        final StringWriter report = new StringWriter();
+        trace.writeReport(new PrintWriter(report), 10);
+        assertTrue(report.toString(), report.toString().startsWith("Class load trace: 2 classes, 1 top-level loads"));
+        assertFalse(report.toString(), report.toString().contains("Failing"));
+    }
+
+    @Test
+    public void failedRootLoadPromotesChildrenToRoots() {
+        final ClassLoadTrace trace = new ClassLoadTrace();
+        final ClassLoadTrace.Node failing = trace.enter("Failing");
+        final ClassLoadTrace.Node child = trace.enter("Child");
+        trace.exit(child, true);
+        trace.exit(failing, false);
+
+        assertNull(child.parent);
+        assertEquals(0L, trace.nestedTime());
+
+        final StringWriter report = new StringWriter();
+        trace.writeReport(new PrintWriter(report), 10);
+        assertTrue(report.toString(), report.toString().startsWith("Class load trace: 1 classes, 1 top-level loads"));
+    }
+}
@@ -0,0 +1,43 @@
+package net.minecraft.launchwrapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import static org.junit.Assert.*;
+
+public class LaunchClassLoaderTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void directoryClassWithEscapedNameBelongsToDirectory() throws Exception {
+        final File root = folder.getRoot();
+        writeClass(root, "escaped package/Class name");
+        final URL rootURL = root.toURI().toURL();
+
+        final LaunchClassLoader classLoader = new LaunchClassLoader(new URL[]{rootURL});
+        classLoader.classDump = (originalName, finalName, originalBytes, bytes, clazz) -> {
+        };
+        final Class<?> clazz = classLoader.findClass("escaped package.Class name");
+
+        assertEquals(rootURL, clazz.getProtectionDomain().getCodeSource().getLocation());
+    }
+
+    private static void writeClass(final File root, final String internalName) throws IOException {
+        final ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, internalName, null, "java/lang/Object", null);
+        writer.visitEnd();
+        final Path file = root.toPath().resolve(internalName + ".class");
+        Files.createDirectories(file.getParent());
+        Files.write(file, writer.toByteArray());
+    }
+}